@@ -24,9 +24,23 @@
 
 package me.thevipershow.bonsai;
 
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.Consumer;
 import java.util.function.IntConsumer;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static java.lang.Math.*;
 
@@ -404,19 +418,1036 @@ public final class Bonsai {
         return sqrt(variance(floats));
     }
 
+    /*
+     * Serialized statistical state always starts with a 3 byte header: a magic byte, the format version
+     * and the type of the serialized object. Every value that follows is written in big-endian order,
+     * regardless of the order of the ByteBuffer it is written to, so that state can be exchanged between nodes.
+     */
+    private static final byte SERIAL_MAGIC = (byte) 0xB5;
+    private static final byte SERIAL_VERSION = 1;
+    private static final int SERIAL_HEADER_SIZE = 3;
+
+    private static final byte SERIAL_ACCUMULATOR = 1;
+    private static final byte SERIAL_HISTOGRAM = 2;
+    private static final byte SERIAL_FREQUENT_ITEMS = 3;
+
+    private static ByteBuffer writeView(final ByteBuffer buffer, final int size) {
+        if (buffer.remaining() < size) throw new BufferOverflowException();
+        return buffer.duplicate().order(ByteOrder.BIG_ENDIAN);
+    }
+
+    private static ByteBuffer readView(final ByteBuffer buffer, final int size) {
+        if (buffer.remaining() < size) throw new BufferUnderflowException();
+        return buffer.duplicate().order(ByteOrder.BIG_ENDIAN);
+    }
+
+    private static void writeHeader(final ByteBuffer buffer, final byte type) {
+        buffer.put(SERIAL_MAGIC).put(SERIAL_VERSION).put(type);
+    }
+
+    private static void readHeader(final ByteBuffer buffer, final byte type) {
+        final byte magic = buffer.get();
+        if (magic != SERIAL_MAGIC)
+            throw new IllegalArgumentException(String.format("invalid serialized header (0x%02X), expected 0x%02X.", magic, SERIAL_MAGIC));
+        final byte version = buffer.get();
+        if (version != SERIAL_VERSION)
+            throw new IllegalArgumentException(String.format("unsupported serialized version (%d), expected %d.", version, SERIAL_VERSION));
+        final byte found = buffer.get();
+        if (found != type)
+            throw new IllegalArgumentException(String.format("unexpected serialized type (%d), expected %d.", found, type));
+    }
+
+    private static ByteBuffer readFully(final InputStream in, final byte[] bytes, final int offset) throws IOException {
+        new DataInputStream(in).readFully(bytes, offset, bytes.length - offset);
+        return ByteBuffer.wrap(bytes);
+    }
+
+    /*
+     * Sizes read from a stream header are not trusted for allocation: the payload is read in bounded chunks and the
+     * array only grows as data actually arrives, so a corrupt header fails with an EOFException instead of an OOM.
+     */
+    private static final int SERIAL_STREAM_CHUNK = 1 << 16;
+
+    private static ByteBuffer readChunked(final InputStream in, final byte[] prefix, final int size) throws IOException {
+        final DataInputStream data = new DataInputStream(in);
+        byte[] bytes = prefix;
+        int read = prefix.length;
+        while (read < size) {
+            final int chunk = Math.min(size - read, SERIAL_STREAM_CHUNK);
+            if (bytes.length < read + chunk)
+                bytes = Arrays.copyOf(bytes, (int) Math.min(size, Math.max((long) read + chunk, 2L * bytes.length)));
+            data.readFully(bytes, read, chunk);
+            read += chunk;
+        }
+        return ByteBuffer.wrap(bytes);
+    }
+
+    public static final class Accumulator {
+        private static final int SERIALIZED_SIZE = SERIAL_HEADER_SIZE + Long.BYTES + 4 * Double.BYTES;
+
+        private long count = 0L;
+        private double mean = 0.d;
+        private double m2 = 0.d;
+        private double min = Double.POSITIVE_INFINITY;
+        private double max = Double.NEGATIVE_INFINITY;
+
+        public static Accumulator of(final double[] doubles) {
+            final Accumulator accumulator = new Accumulator();
+            for (final double d : doubles)
+                accumulator.add(d);
+            return accumulator;
+        }
+
+        public void add(final double value) {
+            if (!Double.isFinite(value)) throw new IllegalArgumentException("Cannot add a non-finite value to an accumulator.");
+            count++;
+            final double delta = value - mean;
+            mean += delta / count;
+            m2 += delta * (value - mean);
+            if (value < min) min = value;
+            if (value > max) max = value;
+        }
+
+        public void merge(final Accumulator other) {
+            combine(other.count, other.mean, other.m2, other.min, other.max);
+        }
+
+        public void merge(final ByteBuffer buffer) {
+            final ByteBuffer view = readView(buffer, SERIALIZED_SIZE);
+            readHeader(view, SERIAL_ACCUMULATOR);
+            final long otherCount = view.getLong();
+            final double otherMean = view.getDouble();
+            final double otherM2 = view.getDouble();
+            final double otherMin = view.getDouble();
+            final double otherMax = view.getDouble();
+            if (otherCount < 0L)
+                throw new IllegalArgumentException(String.format("invalid serialized count (%d), expected >= 0.", otherCount));
+            if (!(otherM2 >= 0.d))
+                throw new IllegalArgumentException(String.format("invalid serialized M2 (%f), expected >= 0.", otherM2));
+            if (otherCount > 0L && otherMin > otherMax)
+                throw new IllegalArgumentException(String.format("invalid serialized bounds, minimum (%f) is greater than maximum (%f).", otherMin, otherMax));
+            combine(otherCount, otherMean, otherM2, otherMin, otherMax);
+            buffer.position(view.position());
+        }
+
+        private void combine(final long otherCount, final double otherMean, final double otherM2, final double otherMin, final double otherMax) {
+            if (otherCount == 0L) return;
+            if (count == 0L) {
+                count = otherCount;
+                mean = otherMean;
+                m2 = otherM2;
+                min = otherMin;
+                max = otherMax;
+                return;
+            }
+            final long total = count + otherCount;
+            final double delta = otherMean - mean;
+            mean += delta * otherCount / total;
+            m2 += otherM2 + delta * delta * ((double) count * otherCount / total);
+            count = total;
+            min = Math.min(min, otherMin);
+            max = Math.max(max, otherMax);
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public double getMean() {
+            if (count == 0L) throw new IllegalStateException("Cannot perform arithmetic mean on an empty accumulator.");
+            return mean;
+        }
+
+        public double getVariance() {
+            if (count < 2L) throw new IllegalStateException(String.format("too few numbers (%d), expected >= 2.", count));
+            return m2 / (count - 1);
+        }
+
+        public double getStdDeviation() {
+            return sqrt(getVariance());
+        }
+
+        public double getMin() {
+            if (count == 0L) throw new IllegalStateException("Cannot find the minimum of an empty accumulator.");
+            return min;
+        }
+
+        public double getMax() {
+            if (count == 0L) throw new IllegalStateException("Cannot find the maximum of an empty accumulator.");
+            return max;
+        }
+
+        public int serializedSize() {
+            return SERIALIZED_SIZE;
+        }
+
+        public void writeTo(final ByteBuffer buffer) {
+            final ByteBuffer view = writeView(buffer, SERIALIZED_SIZE);
+            writeHeader(view, SERIAL_ACCUMULATOR);
+            view.putLong(count).putDouble(mean).putDouble(m2).putDouble(min).putDouble(max);
+            buffer.position(view.position());
+        }
+
+        public void writeTo(final OutputStream out) throws IOException {
+            out.write(toByteArray());
+        }
+
+        public byte[] toByteArray() {
+            final ByteBuffer buffer = ByteBuffer.allocate(SERIALIZED_SIZE);
+            writeTo(buffer);
+            return buffer.array();
+        }
+
+        public static Accumulator readFrom(final ByteBuffer buffer) {
+            final Accumulator accumulator = new Accumulator();
+            accumulator.merge(buffer);
+            return accumulator;
+        }
+
+        public static Accumulator readFrom(final InputStream in) throws IOException {
+            return readFrom(readFully(in, new byte[SERIALIZED_SIZE], 0));
+        }
+    }
+
+    public static final class Histogram {
+        private static final int SERIALIZED_PREFIX_SIZE = SERIAL_HEADER_SIZE + 2 * Double.BYTES + Integer.BYTES;
+        private static final int MAX_BINS = (Integer.MAX_VALUE - SERIALIZED_PREFIX_SIZE) / Long.BYTES - 2;
+
+        private final double lowerBound;
+        private final double upperBound;
+        private final double binWidth;
+        private final long[] counts;
+        private long underflow = 0L;
+        private long overflow = 0L;
+
+        public Histogram(final double lowerBound, final double upperBound, final int bins) {
+            checkBins(bins);
+            if (!Double.isFinite(lowerBound) || !Double.isFinite(upperBound))
+                throw new IllegalArgumentException(String.format("invalid bounds [%f, %f), both bounds must be finite.", lowerBound, upperBound));
+            if (!(lowerBound < upperBound))
+                throw new IllegalArgumentException(String.format("invalid bounds [%f, %f), lower bound must be smaller than upper bound.", lowerBound, upperBound));
+            this.binWidth = (upperBound - lowerBound) / bins;
+            if (!Double.isFinite(binWidth) || binWidth <= 0.d)
+                throw new IllegalArgumentException(String.format("invalid bounds [%f, %f), the bin width of %d bins must be finite and positive.", lowerBound, upperBound, bins));
+            this.lowerBound = lowerBound;
+            this.upperBound = upperBound;
+            this.counts = new long[bins];
+        }
+
+        public void add(final double value) {
+            if (Double.isNaN(value)) throw new IllegalArgumentException("Cannot add NaN to a histogram.");
+            if (value < lowerBound) {
+                underflow++;
+            } else if (value >= upperBound) {
+                overflow++;
+            } else {
+                counts[Math.min((int) ((value - lowerBound) / binWidth), counts.length - 1)]++;
+            }
+        }
+
+        public void merge(final Histogram other) {
+            checkLayout(other.lowerBound, other.upperBound, other.counts.length);
+            for (int i = 0; i < counts.length; i++)
+                counts[i] += other.counts[i];
+            underflow += other.underflow;
+            overflow += other.overflow;
+        }
+
+        private static int checkBins(final int bins) {
+            if (bins < 1 || bins > MAX_BINS)
+                throw new IllegalArgumentException(String.format("invalid bins (%d), expected between 1 and %d.", bins, MAX_BINS));
+            return bins;
+        }
+
+        public void merge(final ByteBuffer buffer) {
+            final ByteBuffer view = readView(buffer, SERIALIZED_PREFIX_SIZE);
+            readHeader(view, SERIAL_HISTOGRAM);
+            checkLayout(view.getDouble(), view.getDouble(), view.getInt());
+            if (view.remaining() < serializedSize() - SERIALIZED_PREFIX_SIZE) throw new BufferUnderflowException();
+            for (int i = 0, position = view.position(); i < 2 + counts.length; i++, position += Long.BYTES) {
+                final long c = view.getLong(position);
+                if (c < 0L) throw new IllegalArgumentException(String.format("invalid serialized count (%d), expected >= 0.", c));
+            }
+            underflow += view.getLong();
+            overflow += view.getLong();
+            for (int i = 0; i < counts.length; i++)
+                counts[i] += view.getLong();
+            buffer.position(view.position());
+        }
+
+        private void checkLayout(final double otherLowerBound, final double otherUpperBound, final int otherBins) {
+            if (otherLowerBound != lowerBound || otherUpperBound != upperBound || otherBins != counts.length)
+                throw new IllegalArgumentException(String.format("incompatible histogram layout [%f, %f) x %d, expected [%f, %f) x %d.",
+                        otherLowerBound, otherUpperBound, otherBins, lowerBound, upperBound, counts.length));
+        }
+
+        public double getLowerBound() {
+            return lowerBound;
+        }
+
+        public double getUpperBound() {
+            return upperBound;
+        }
+
+        public int getBinCount() {
+            return counts.length;
+        }
+
+        public double getBinLowerBound(final int bin) {
+            return lowerBound + bin * binWidth;
+        }
+
+        public long getCount(final int bin) {
+            return counts[bin];
+        }
+
+        public long[] getCounts() {
+            return Arrays.copyOf(counts, counts.length);
+        }
+
+        public long getUnderflow() {
+            return underflow;
+        }
+
+        public long getOverflow() {
+            return overflow;
+        }
+
+        public long getTotalCount() {
+            long total = underflow + overflow;
+            for (final long c : counts)
+                total += c;
+            return total;
+        }
+
+        public int serializedSize() {
+            return SERIALIZED_PREFIX_SIZE + (2 + counts.length) * Long.BYTES;
+        }
+
+        public void writeTo(final ByteBuffer buffer) {
+            final ByteBuffer view = writeView(buffer, serializedSize());
+            writeHeader(view, SERIAL_HISTOGRAM);
+            view.putDouble(lowerBound).putDouble(upperBound).putInt(counts.length);
+            view.putLong(underflow).putLong(overflow);
+            for (final long c : counts)
+                view.putLong(c);
+            buffer.position(view.position());
+        }
+
+        public void writeTo(final OutputStream out) throws IOException {
+            out.write(toByteArray());
+        }
+
+        public byte[] toByteArray() {
+            final ByteBuffer buffer = ByteBuffer.allocate(serializedSize());
+            writeTo(buffer);
+            return buffer.array();
+        }
+
+        public static Histogram readFrom(final ByteBuffer buffer) {
+            final ByteBuffer view = readView(buffer, SERIALIZED_PREFIX_SIZE);
+            readHeader(view, SERIAL_HISTOGRAM);
+            final double lowerBound = view.getDouble();
+            final double upperBound = view.getDouble();
+            final int bins = checkBins(view.getInt());
+            if (view.remaining() < (2 + bins) * Long.BYTES) throw new BufferUnderflowException();
+            final Histogram histogram = new Histogram(lowerBound, upperBound, bins);
+            histogram.merge(buffer);
+            return histogram;
+        }
+
+        public static Histogram readFrom(final InputStream in) throws IOException {
+            final byte[] prefix = new byte[SERIALIZED_PREFIX_SIZE];
+            final ByteBuffer view = readFully(in, prefix, 0);
+            readHeader(view, SERIAL_HISTOGRAM);
+            final int bins = checkBins(view.getInt(SERIALIZED_PREFIX_SIZE - Integer.BYTES));
+            return readFrom(readChunked(in, prefix, SERIALIZED_PREFIX_SIZE + (2 + bins) * Long.BYTES));
+        }
+    }
+
+    /*
+     * Space-Saving frequent items sketch: at most capacity counters are kept, and every estimated frequency
+     * overestimates the real one by at most getTotalCount() / capacity. Counters live in a min-heap so the
+     * smallest one can be evicted in O(log capacity), and an open addressing table maps keys to heap positions.
+     * After a merge, keys that are not tracked may still have been seen up to floor times, so new counters start
+     * from floor rather than from 0 until the sketch is full again.
+     */
+    public static final class FrequentItems {
+        private static final int SERIALIZED_PREFIX_SIZE = SERIAL_HEADER_SIZE + 1 + Integer.BYTES + 2 * Long.BYTES + Integer.BYTES;
+        private static final int SERIALIZED_ENTRY_SIZE = 3 * Long.BYTES;
+        private static final int MAX_CAPACITY = (Integer.MAX_VALUE - SERIALIZED_PREFIX_SIZE) / SERIALIZED_ENTRY_SIZE;
+
+        public enum ItemType {
+            LONG,
+            DOUBLE
+        }
+
+        private final ItemType type;
+        private final int capacity;
+        private final long[] keys;
+        private final long[] counts;
+        private final long[] errors;
+        private final int[] slots;
+        private final int[] table;
+        private final int mask;
+        private final int shift;
+        private int size = 0;
+        private long total = 0L;
+        private long floor = 0L;
+
+        public FrequentItems(final int capacity) {
+            this(capacity, ItemType.LONG);
+        }
+
+        public FrequentItems(final int capacity, final ItemType type) {
+            checkCapacity(capacity);
+            this.type = type;
+            this.capacity = capacity;
+            this.keys = new long[capacity];
+            this.counts = new long[capacity];
+            this.errors = new long[capacity];
+            this.slots = new int[capacity];
+            this.table = new int[Integer.highestOneBit(capacity) << 2];
+            this.mask = table.length - 1;
+            this.shift = Long.SIZE - Integer.numberOfTrailingZeros(table.length);
+        }
+
+        public static FrequentItems withMaxError(final double epsilon) {
+            return withMaxError(epsilon, ItemType.LONG);
+        }
+
+        public static FrequentItems withMaxError(final double epsilon, final ItemType type) {
+            if (!(epsilon > 0.d && epsilon <= 1.d))
+                throw new IllegalArgumentException(String.format("invalid error bound (%f), expected between 0 (exclusive) and 1.", epsilon));
+            return new FrequentItems((int) Math.min(ceil(1.d / epsilon), MAX_CAPACITY), type);
+        }
+
+        private static int checkCapacity(final int capacity) {
+            if (capacity < 1 || capacity > MAX_CAPACITY)
+                throw new IllegalArgumentException(String.format("invalid capacity (%d), expected between 1 and %d.", capacity, MAX_CAPACITY));
+            return capacity;
+        }
+
+        private static int checkSize(final int size, final int capacity) {
+            if (size < 0 || size > capacity)
+                throw new IllegalArgumentException(String.format("invalid serialized size (%d), expected between 0 and %d.", size, capacity));
+            return size;
+        }
+
+        private static ItemType readItemType(final byte ordinal) {
+            if (ordinal < 0 || ordinal >= ItemType.values().length)
+                throw new IllegalArgumentException(String.format("unknown serialized item type (%d).", ordinal));
+            return ItemType.values()[ordinal];
+        }
+
+        private void checkType(final ItemType expected) {
+            if (type != expected)
+                throw new IllegalStateException(String.format("Cannot use %s items on a sketch of %s items.", expected, type));
+        }
+
+        private static long bits(final double value) {
+            return Double.doubleToLongBits(value + 0.d);
+        }
+
+        private int hash(final long key) {
+            return (int) ((key * 0x9E3779B97F4A7C15L) >>> shift);
+        }
+
+        private int findSlot(final long key) {
+            int slot = hash(key);
+            while (table[slot] != 0 && keys[table[slot] - 1] != key)
+                slot = (slot + 1) & mask;
+            return slot;
+        }
+
+        private void removeSlot(int slot) {
+            int next = slot;
+            while (true) {
+                next = (next + 1) & mask;
+                if (table[next] == 0) break;
+                final int home = hash(keys[table[next] - 1]);
+                final boolean stays = slot <= next ? (home > slot && home <= next) : (home > slot || home <= next);
+                if (!stays) {
+                    table[slot] = table[next];
+                    slots[table[slot] - 1] = slot;
+                    slot = next;
+                }
+            }
+            table[slot] = 0;
+        }
+
+        private void swap(final int i, final int j) {
+            final long key = keys[i];
+            keys[i] = keys[j];
+            keys[j] = key;
+            final long count = counts[i];
+            counts[i] = counts[j];
+            counts[j] = count;
+            final long error = errors[i];
+            errors[i] = errors[j];
+            errors[j] = error;
+            final int slot = slots[i];
+            slots[i] = slots[j];
+            slots[j] = slot;
+            table[slots[i]] = i + 1;
+            table[slots[j]] = j + 1;
+        }
+
+        private void siftUp(int i) {
+            while (i > 0) {
+                final int parent = (i - 1) >>> 1;
+                if (counts[parent] <= counts[i]) break;
+                swap(i, parent);
+                i = parent;
+            }
+        }
+
+        private void siftDown(int i) {
+            while (true) {
+                final int left = (i << 1) + 1;
+                if (left >= size) break;
+                final int right = left + 1;
+                final int smallest = (right < size && counts[right] < counts[left]) ? right : left;
+                if (counts[smallest] >= counts[i]) break;
+                swap(i, smallest);
+                i = smallest;
+            }
+        }
+
+        public void update(final long value) {
+            update(value, 1L);
+        }
+
+        public void update(final long value, final long weight) {
+            checkType(ItemType.LONG);
+            updateKey(value, weight);
+        }
+
+        public void update(final double value) {
+            update(value, 1L);
+        }
+
+        public void update(final double value, final long weight) {
+            checkType(ItemType.DOUBLE);
+            updateKey(bits(value), weight);
+        }
+
+        private void updateKey(final long key, final long weight) {
+            if (weight < 1L) throw new IllegalArgumentException(String.format("invalid weight (%d), expected >= 1.", weight));
+            total += weight;
+            final int slot = findSlot(key);
+            if (table[slot] != 0) {
+                final int i = table[slot] - 1;
+                counts[i] += weight;
+                siftDown(i);
+            } else if (size < capacity) {
+                final int i = size++;
+                keys[i] = key;
+                counts[i] = floor + weight;
+                errors[i] = floor;
+                slots[i] = slot;
+                table[slot] = i + 1;
+                siftUp(i);
+            } else {
+                removeSlot(slots[0]);
+                final long min = counts[0];
+                keys[0] = key;
+                counts[0] = min + weight;
+                errors[0] = min;
+                slots[0] = findSlot(key);
+                table[slots[0]] = 1;
+                siftDown(0);
+            }
+        }
+
+        private long minCount() {
+            return size < capacity ? floor : counts[0];
+        }
+
+        private long estimateKey(final long key) {
+            final int slot = findSlot(key);
+            return table[slot] != 0 ? counts[table[slot] - 1] : minCount();
+        }
+
+        public long estimateCount(final long value) {
+            checkType(ItemType.LONG);
+            return estimateKey(value);
+        }
+
+        public long estimateCount(final double value) {
+            checkType(ItemType.DOUBLE);
+            return estimateKey(bits(value));
+        }
+
+        public long getMaxError() {
+            return minCount();
+        }
+
+        public long getTotalCount() {
+            return total;
+        }
+
+        public int getCapacity() {
+            return capacity;
+        }
+
+        public ItemType getItemType() {
+            return type;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        private IntStream topIndices(final int k) {
+            if (k < 0) throw new IllegalArgumentException(String.format("invalid k (%d), expected >= 0.", k));
+            return IntStream.range(0, size).boxed()
+                    .sorted(Comparator.comparingLong((Integer i) -> counts[i]).reversed())
+                    .limit(k)
+                    .mapToInt(Integer::intValue);
+        }
+
+        public List<Mode<Long>> topK(final int k) {
+            checkType(ItemType.LONG);
+            return topIndices(k).mapToObj(i -> Mode.of(keys[i], counts[i], errors[i])).collect(Collectors.toList());
+        }
+
+        public List<Mode<Double>> topKDoubles(final int k) {
+            checkType(ItemType.DOUBLE);
+            return topIndices(k).mapToObj(i -> Mode.of(Double.longBitsToDouble(keys[i]), counts[i], errors[i])).collect(Collectors.toList());
+        }
+
+        public Mode<Long> mode() {
+            final List<Mode<Long>> top = topK(1);
+            return top.isEmpty() ? Mode.of(null) : top.get(0);
+        }
+
+        public Mode<Double> modeDouble() {
+            final List<Mode<Double>> top = topKDoubles(1);
+            return top.isEmpty() ? Mode.of(null) : top.get(0);
+        }
+
+        private void checkMergeType(final ItemType otherType) {
+            if (otherType != type)
+                throw new IllegalArgumentException(String.format("Cannot merge a sketch of %s items into a sketch of %s items.", otherType, type));
+        }
+
+        public void merge(final FrequentItems other) {
+            checkMergeType(other.type);
+            combine(other.keys, other.counts, other.errors, other.size, other.minCount(), other.total);
+        }
+
+        public void merge(final ByteBuffer buffer) {
+            final ByteBuffer view = readView(buffer, SERIALIZED_PREFIX_SIZE);
+            readHeader(view, SERIAL_FREQUENT_ITEMS);
+            checkMergeType(readItemType(view.get()));
+            final int otherCapacity = checkCapacity(view.getInt());
+            final long otherTotal = view.getLong();
+            final long otherFloor = view.getLong();
+            final int otherSize = checkSize(view.getInt(), otherCapacity);
+            if (otherTotal < 0L || otherFloor < 0L)
+                throw new IllegalArgumentException(String.format("invalid serialized total (%d) or floor (%d), expected >= 0.", otherTotal, otherFloor));
+            if (view.remaining() < otherSize * SERIALIZED_ENTRY_SIZE) throw new BufferUnderflowException();
+            final long[] otherKeys = new long[otherSize];
+            final long[] otherCounts = new long[otherSize];
+            final long[] otherErrors = new long[otherSize];
+            long otherMin = otherSize < otherCapacity ? otherFloor : Long.MAX_VALUE;
+            for (int i = 0; i < otherSize; i++) {
+                otherKeys[i] = view.getLong();
+                otherCounts[i] = view.getLong();
+                otherErrors[i] = view.getLong();
+                if (otherCounts[i] < 1L || otherErrors[i] < 0L || otherErrors[i] >= otherCounts[i])
+                    throw new IllegalArgumentException(String.format("invalid serialized counter (%d, error %d).", otherCounts[i], otherErrors[i]));
+                otherMin = Math.min(otherMin, otherCounts[i]);
+            }
+            final long[] sortedKeys = otherKeys.clone();
+            Arrays.sort(sortedKeys);
+            for (int i = 1; i < otherSize; i++)
+                if (sortedKeys[i] == sortedKeys[i - 1])
+                    throw new IllegalArgumentException(String.format("duplicate serialized key (%d).", sortedKeys[i]));
+            combine(otherKeys, otherCounts, otherErrors, otherSize, otherMin, otherTotal);
+            buffer.position(view.position());
+        }
+
+        /*
+         * Mergeable summaries merge (Agarwal et al.): a key missing from one side is assumed to have that side's
+         * minimum counter, which keeps every estimate an upper bound, then only the largest capacity counters are kept.
+         * A key missing from both sides may still have been seen up to both minimums, which becomes the new floor.
+         */
+        private void combine(final long[] otherKeys, final long[] otherCounts, final long[] otherErrors, final int otherSize, final long otherMin, final long otherTotal) {
+            final long thisMin = minCount();
+            final int mergedSize = size + otherSize;
+            final long[] mergedKeys = new long[mergedSize];
+            final long[] mergedCounts = new long[mergedSize];
+            final long[] mergedErrors = new long[mergedSize];
+            final boolean[] matched = new boolean[size];
+            int n = 0;
+            for (int j = 0; j < otherSize; j++) {
+                final int slot = findSlot(otherKeys[j]);
+                mergedKeys[n] = otherKeys[j];
+                if (table[slot] != 0) {
+                    final int i = table[slot] - 1;
+                    matched[i] = true;
+                    mergedCounts[n] = counts[i] + otherCounts[j];
+                    mergedErrors[n] = errors[i] + otherErrors[j];
+                } else {
+                    mergedCounts[n] = thisMin + otherCounts[j];
+                    mergedErrors[n] = thisMin + otherErrors[j];
+                }
+                n++;
+            }
+            for (int i = 0; i < size; i++) {
+                if (matched[i]) continue;
+                mergedKeys[n] = keys[i];
+                mergedCounts[n] = counts[i] + otherMin;
+                mergedErrors[n] = errors[i] + otherMin;
+                n++;
+            }
+            final int[] kept = IntStream.range(0, n).boxed()
+                    .sorted(Comparator.comparingLong((Integer i) -> mergedCounts[i]).reversed())
+                    .limit(capacity)
+                    .mapToInt(Integer::intValue)
+                    .toArray();
+            Arrays.fill(table, 0);
+            size = kept.length;
+            for (int i = 0; i < size; i++) {
+                keys[i] = mergedKeys[kept[i]];
+                counts[i] = mergedCounts[kept[i]];
+                errors[i] = mergedErrors[kept[i]];
+                slots[i] = findSlot(keys[i]);
+                table[slots[i]] = i + 1;
+            }
+            for (int i = (size >>> 1) - 1; i >= 0; i--)
+                siftDown(i);
+            floor = thisMin + otherMin;
+            total += otherTotal;
+        }
+
+        public int serializedSize() {
+            return SERIALIZED_PREFIX_SIZE + size * SERIALIZED_ENTRY_SIZE;
+        }
+
+        public void writeTo(final ByteBuffer buffer) {
+            final ByteBuffer view = writeView(buffer, serializedSize());
+            writeHeader(view, SERIAL_FREQUENT_ITEMS);
+            view.put((byte) type.ordinal()).putInt(capacity).putLong(total).putLong(floor).putInt(size);
+            for (int i = 0; i < size; i++)
+                view.putLong(keys[i]).putLong(counts[i]).putLong(errors[i]);
+            buffer.position(view.position());
+        }
+
+        public void writeTo(final OutputStream out) throws IOException {
+            out.write(toByteArray());
+        }
+
+        public byte[] toByteArray() {
+            final ByteBuffer buffer = ByteBuffer.allocate(serializedSize());
+            writeTo(buffer);
+            return buffer.array();
+        }
+
+        /*
+         * The capacity written on the wire is not trusted for allocation, so the reader chooses the capacity of the
+         * sketch it builds; a different capacity than the writer's is fine, the counters are merged into it.
+         */
+        public static FrequentItems readFrom(final ByteBuffer buffer, final int capacity) {
+            checkCapacity(capacity);
+            final ByteBuffer view = readView(buffer, SERIALIZED_PREFIX_SIZE);
+            readHeader(view, SERIAL_FREQUENT_ITEMS);
+            final FrequentItems items = new FrequentItems(capacity, readItemType(view.get()));
+            items.merge(buffer);
+            return items;
+        }
+
+        public static FrequentItems readFrom(final InputStream in, final int capacity) throws IOException {
+            checkCapacity(capacity);
+            return readFrom(readBuffer(in), capacity);
+        }
+
+        private static ByteBuffer readBuffer(final InputStream in) throws IOException {
+            final byte[] prefix = new byte[SERIALIZED_PREFIX_SIZE];
+            final ByteBuffer view = readFully(in, prefix, 0);
+            readHeader(view, SERIAL_FREQUENT_ITEMS);
+            final int otherSize = checkSize(view.getInt(SERIALIZED_PREFIX_SIZE - Integer.BYTES), MAX_CAPACITY);
+            return readChunked(in, prefix, SERIALIZED_PREFIX_SIZE + otherSize * SERIALIZED_ENTRY_SIZE);
+        }
+    }
+
+    public enum MatrixLayout {
+        ROW_MAJOR,
+        COLUMN_MAJOR
+    }
+
+    public static final class AxisStatistics {
+        private final double[] mean;
+        private final double[] m2;
+        private final double[] min;
+        private final double[] max;
+        private long count = 0L;
+
+        private AxisStatistics(final int size) {
+            this.mean = new double[size];
+            this.m2 = new double[size];
+            this.min = new double[size];
+            this.max = new double[size];
+            Arrays.fill(min, Double.POSITIVE_INFINITY);
+            Arrays.fill(max, Double.NEGATIVE_INFINITY);
+        }
+
+        private AxisStatistics merge(final AxisStatistics other) {
+            final long total = count + other.count;
+            final double otherWeight = (double) other.count / total;
+            final double crossWeight = (double) count * other.count / total;
+            for (int i = 0; i < mean.length; i++) {
+                final double delta = other.mean[i] - mean[i];
+                mean[i] += delta * otherWeight;
+                m2[i] += other.m2[i] + delta * delta * crossWeight;
+                min[i] = Math.min(min[i], other.min[i]);
+                max[i] = Math.max(max[i], other.max[i]);
+            }
+            count = total;
+            return this;
+        }
+
+        public int size() {
+            return mean.length;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public double getMean(final int index) {
+            return mean[index];
+        }
+
+        public double getVariance(final int index) {
+            if (count < 2L) throw new IllegalStateException(String.format("too few numbers (%d), expected >= 2.", count));
+            return m2[index] / (count - 1);
+        }
+
+        public double getStdDeviation(final int index) {
+            return sqrt(getVariance(index));
+        }
+
+        public double getMin(final int index) {
+            return min[index];
+        }
+
+        public double getMax(final int index) {
+            return max[index];
+        }
+
+        public double[] getMeans() {
+            return Arrays.copyOf(mean, mean.length);
+        }
+
+        public double[] getVariances() {
+            final double[] variances = new double[mean.length];
+            for (int i = 0; i < variances.length; i++)
+                variances[i] = getVariance(i);
+            return variances;
+        }
+
+        public double[] getStdDeviations() {
+            final double[] stdDeviations = getVariances();
+            for (int i = 0; i < stdDeviations.length; i++)
+                stdDeviations[i] = sqrt(stdDeviations[i]);
+            return stdDeviations;
+        }
+
+        public double[] getMins() {
+            return Arrays.copyOf(min, min.length);
+        }
+
+        public double[] getMaxes() {
+            return Arrays.copyOf(max, max.length);
+        }
+
+        public Accumulator getAccumulator(final int index) {
+            final Accumulator accumulator = new Accumulator();
+            accumulator.combine(count, mean[index], m2[index], min[index], max[index]);
+            return accumulator;
+        }
+    }
+
+    /*
+     * A matrix is seen as a sequence of lines (rows of a row-major matrix, columns of a column-major one), each
+     * holding lanes contiguous values. Statistics per lane walk every line once, but only over a block of lanes
+     * at a time so the running state of the block stays in cache; statistics per line walk each line on its own.
+     */
+    private static final int MATRIX_BLOCK_LANES = 1024;
+    private static final int MATRIX_MIN_PARALLEL_LINES = 64;
+
+    private static final class MatrixLines {
+        private final double[][] jagged;
+        private final double[] flat;
+        private final int lines;
+        private final int lanes;
+
+        private MatrixLines(final double[][] jagged, final double[] flat, final int lines, final int lanes) {
+            this.jagged = jagged;
+            this.flat = flat;
+            this.lines = lines;
+            this.lanes = lanes;
+        }
+
+        private static MatrixLines of(final double[][] matrix) {
+            final int rows = matrix.length;
+            if (rows == 0) throw new IllegalArgumentException("Cannot compute statistics of an empty matrix.");
+            final int columns = matrix[0].length;
+            if (columns == 0) throw new IllegalArgumentException("Cannot compute statistics of an empty matrix.");
+            for (int r = 1; r < rows; r++)
+                if (matrix[r].length != columns)
+                    throw new IllegalArgumentException(String.format("row %d has %d columns, expected %d.", r, matrix[r].length, columns));
+            return new MatrixLines(matrix, null, rows, columns);
+        }
+
+        private static MatrixLines of(final double[] matrix, final int rows, final int columns, final MatrixLayout layout) {
+            if (rows < 1 || columns < 1)
+                throw new IllegalArgumentException(String.format("invalid matrix size (%dx%d), expected at least 1x1.", rows, columns));
+            if ((long) rows * columns != matrix.length)
+                throw new IllegalArgumentException(String.format("invalid matrix size (%dx%d) for %d values.", rows, columns, matrix.length));
+            return layout == MatrixLayout.ROW_MAJOR ? new MatrixLines(null, matrix, rows, columns) : new MatrixLines(null, matrix, columns, rows);
+        }
+
+        private double[] array(final int line) {
+            return flat != null ? flat : jagged[line];
+        }
+
+        private int offset(final int line) {
+            return flat != null ? line * lanes : 0;
+        }
+
+        private AxisStatistics perLane(final boolean parallel) {
+            if (!parallel || lines < 2 * MATRIX_MIN_PARALLEL_LINES) return perLane(0, lines);
+            final int chunk = Math.max(MATRIX_MIN_PARALLEL_LINES, -Math.floorDiv(-lines, 2 * ForkJoinPool.getCommonPoolParallelism()));
+            final int chunks = -Math.floorDiv(-lines, chunk);
+            return IntStream.range(0, chunks).parallel()
+                    .mapToObj(c -> perLane(c * chunk, Math.min(lines, (c + 1) * chunk)))
+                    .reduce(AxisStatistics::merge)
+                    .orElseThrow(IllegalStateException::new);
+        }
+
+        private AxisStatistics perLane(final int fromLine, final int toLine) {
+            final AxisStatistics stats = new AxisStatistics(lanes);
+            final double[] mean = stats.mean;
+            final double[] m2 = stats.m2;
+            final double[] min = stats.min;
+            final double[] max = stats.max;
+            for (int fromLane = 0; fromLane < lanes; fromLane += MATRIX_BLOCK_LANES) {
+                final int toLane = Math.min(lanes, fromLane + MATRIX_BLOCK_LANES);
+                for (int line = fromLine; line < toLine; line++) {
+                    final double[] array = array(line);
+                    final int shift = offset(line);
+                    final double inverseCount = 1.d / (line - fromLine + 1);
+                    for (int lane = fromLane; lane < toLane; lane++) {
+                        final double value = array[shift + lane];
+                        final double delta = value - mean[lane];
+                        mean[lane] += delta * inverseCount;
+                        m2[lane] += delta * (value - mean[lane]);
+                        if (value < min[lane]) min[lane] = value;
+                        if (value > max[lane]) max[lane] = value;
+                    }
+                }
+            }
+            stats.count = toLine - fromLine;
+            return stats;
+        }
+
+        private AxisStatistics perLine(final boolean parallel) {
+            final AxisStatistics stats = new AxisStatistics(lines);
+            stats.count = lanes;
+            final IntStream indices = IntStream.range(0, lines);
+            (parallel && lines >= 2 * MATRIX_MIN_PARALLEL_LINES ? indices.parallel() : indices).forEach(line -> perLine(stats, line));
+            return stats;
+        }
+
+        private void perLine(final AxisStatistics stats, final int line) {
+            final double[] array = array(line);
+            final int from = offset(line);
+            final int to = from + lanes;
+            double sum = 0.d;
+            double min = Double.POSITIVE_INFINITY;
+            double max = Double.NEGATIVE_INFINITY;
+            for (int i = from; i < to; i++) {
+                final double value = array[i];
+                sum += value;
+                if (value < min) min = value;
+                if (value > max) max = value;
+            }
+            final double mean = sum / lanes;
+            double gapsSum = 0.d;
+            for (int i = from; i < to; i++) {
+                final double gap = array[i] - mean;
+                gapsSum += gap * gap;
+            }
+            stats.mean[line] = mean;
+            stats.m2[line] = gapsSum;
+            stats.min[line] = min;
+            stats.max[line] = max;
+        }
+    }
+
+    public static AxisStatistics columnStatistics(final double[][] rows) {
+        return columnStatistics(rows, false);
+    }
+
+    public static AxisStatistics columnStatistics(final double[][] rows, final boolean parallel) {
+        return MatrixLines.of(rows).perLane(parallel);
+    }
+
+    public static AxisStatistics rowStatistics(final double[][] rows) {
+        return rowStatistics(rows, false);
+    }
+
+    public static AxisStatistics rowStatistics(final double[][] rows, final boolean parallel) {
+        return MatrixLines.of(rows).perLine(parallel);
+    }
+
+    public static AxisStatistics columnStatistics(final double[] matrix, final int rows, final int columns, final MatrixLayout layout) {
+        return columnStatistics(matrix, rows, columns, layout, false);
+    }
+
+    public static AxisStatistics columnStatistics(final double[] matrix, final int rows, final int columns, final MatrixLayout layout, final boolean parallel) {
+        final MatrixLines lines = MatrixLines.of(matrix, rows, columns, layout);
+        return layout == MatrixLayout.ROW_MAJOR ? lines.perLane(parallel) : lines.perLine(parallel);
+    }
+
+    public static AxisStatistics rowStatistics(final double[] matrix, final int rows, final int columns, final MatrixLayout layout) {
+        return rowStatistics(matrix, rows, columns, layout, false);
+    }
+
+    public static AxisStatistics rowStatistics(final double[] matrix, final int rows, final int columns, final MatrixLayout layout, final boolean parallel) {
+        final MatrixLines lines = MatrixLines.of(matrix, rows, columns, layout);
+        return layout == MatrixLayout.ROW_MAJOR ? lines.perLine(parallel) : lines.perLane(parallel);
+    }
+
     public static class Mode<T extends Number> {
         private final T value;
         private final boolean isEmpty;
+        private final long frequency;
+        private final long error;
 
-        private Mode(T value) {
+        private Mode(T value, long frequency, long error) {
             this.value = value;
             this.isEmpty = (value == null);
+            this.frequency = frequency;
+            this.error = error;
         }
 
         public T getValue() {
             return value;
         }
 
+        public long getFrequency() {
+            return frequency;
+        }
+
+        public long getError() {
+            return error;
+        }
+
         public boolean isEmpty() {
             return isEmpty;
         }
@@ -427,7 +1458,11 @@ public final class Bonsai {
         }
 
         public static <T extends Number> Mode<T> of(final T number) {
-            return new Mode<T>(number);
+            return new Mode<T>(number, 0L, 0L);
+        }
+
+        public static <T extends Number> Mode<T> of(final T number, final long frequency, final long error) {
+            return new Mode<T>(number, frequency, error);
         }
     }
 
@@ -0,0 +1,245 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 TheViperShow
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package me.thevipershow.bonsai;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public final class FrequentItemsTest {
+
+    private static long[] skewedStream(final long seed, final int length) {
+        final Random random = new Random(seed);
+        final long[] stream = new long[length];
+        for (int i = 0; i < length; i++) {
+            // roughly half of the stream hits the 5 heavy hitters, the rest is spread over 100k values
+            stream[i] = random.nextBoolean() ? random.nextInt(5) : 1_000 + random.nextInt(100_000);
+        }
+        return stream;
+    }
+
+    private static Map<Long, Long> exactCounts(final long[] stream) {
+        final Map<Long, Long> exact = new HashMap<>();
+        for (final long l : stream)
+            exact.merge(l, 1L, Long::sum);
+        return exact;
+    }
+
+    private static void assertWithinBounds(final Bonsai.FrequentItems items, final Map<Long, Long> exact) {
+        final List<Bonsai.Mode<Long>> top = items.topK(5);
+        assertEquals(5, top.size());
+        final long maxError = items.getTotalCount() / items.getCapacity();
+        for (final Bonsai.Mode<Long> mode : top) {
+            assertTrue("Heavy hitter not found: " + mode.getValue(), mode.getValue() < 5L);
+            final long real = exact.get(mode.getValue());
+            assertTrue(mode.getFrequency() >= real);
+            assertTrue(mode.getFrequency() - real <= maxError);
+            assertTrue(mode.getFrequency() - mode.getError() <= real);
+        }
+    }
+
+    @Test
+    public void topKTest() {
+        final long[] stream = skewedStream(7L, 200_000);
+        final Bonsai.FrequentItems items = Bonsai.FrequentItems.withMaxError(0.01d);
+        for (final long l : stream)
+            items.update(l);
+        assertEquals(100, items.getCapacity());
+        assertEquals(stream.length, items.getTotalCount());
+        assertWithinBounds(items, exactCounts(stream));
+    }
+
+    @Test
+    public void mergeTest() {
+        final long[] stream = skewedStream(11L, 200_000);
+        final ByteBuffer wire = ByteBuffer.allocate(4 * 64 * 1024);
+        final int partition = stream.length / 4;
+        for (int p = 0; p < 4; p++) {
+            final Bonsai.FrequentItems worker = new Bonsai.FrequentItems(100);
+            for (int i = p * partition; i < (p + 1) * partition; i++)
+                worker.update(stream[i]);
+            worker.writeTo(wire);
+        }
+        wire.flip();
+
+        final Bonsai.FrequentItems merged = Bonsai.FrequentItems.readFrom(wire, 100);
+        while (wire.hasRemaining())
+            merged.merge(wire);
+        assertEquals(stream.length, merged.getTotalCount());
+        assertWithinBounds(merged, exactCounts(stream));
+    }
+
+    @Test
+    public void doubleModeTest() {
+        final Bonsai.FrequentItems items = new Bonsai.FrequentItems(4, Bonsai.FrequentItems.ItemType.DOUBLE);
+        final double[] doubles = new double[]{1.5d, 2.5d, 1.5d, -0.d, 0.d, 0.d, 3.5d, 1.5d, 1.5d};
+        for (final double d : doubles)
+            items.update(d);
+        final Bonsai.Mode<Double> mode = items.modeDouble();
+        assertEquals(1.5d, mode.getValue(), 0d);
+        assertEquals(4L, mode.getFrequency());
+        assertEquals(0L, mode.getError());
+        assertEquals(3L, items.estimateCount(0.d));
+        assertEquals(items.getMaxError(), items.estimateCount(9.5d));
+        assertTrue(new Bonsai.FrequentItems(4).mode().isEmpty());
+        assertTrue(new Bonsai.FrequentItems(4, Bonsai.FrequentItems.ItemType.DOUBLE).modeDouble().isEmpty());
+    }
+
+    @Test
+    public void mixedCapacityMergeTest() {
+        final Bonsai.FrequentItems small = new Bonsai.FrequentItems(2);
+        for (int i = 0; i < 100; i++)
+            small.update(i % 10);
+        final Bonsai.FrequentItems large = new Bonsai.FrequentItems(100);
+        large.merge(small);
+        assertTrue(large.estimateCount(7L) >= 10L);
+        assertTrue(large.getMaxError() >= 10L);
+
+        final Bonsai.FrequentItems copy = Bonsai.FrequentItems.readFrom(ByteBuffer.wrap(large.toByteArray()), 100);
+        assertEquals(100, copy.getCapacity());
+        assertTrue(copy.estimateCount(7L) >= 10L);
+        copy.update(42L);
+        assertTrue(copy.estimateCount(42L) >= 1L + large.getMaxError());
+    }
+
+    @Test
+    public void itemTypeTest() {
+        final Bonsai.FrequentItems longs = new Bonsai.FrequentItems(4);
+        final Bonsai.FrequentItems doubles = new Bonsai.FrequentItems(4, Bonsai.FrequentItems.ItemType.DOUBLE);
+        longs.update(Double.doubleToLongBits(1.5d));
+        doubles.update(1.5d);
+        final Runnable[] wrongType = new Runnable[]{
+                () -> longs.update(1.5d),
+                () -> longs.estimateCount(1.5d),
+                () -> longs.topKDoubles(1),
+                () -> doubles.update(1L),
+                () -> doubles.estimateCount(1L),
+                () -> doubles.topK(1)
+        };
+        for (final Runnable call : wrongType) {
+            try {
+                call.run();
+                fail("Call with the wrong item type was accepted.");
+            } catch (final IllegalStateException expected) {
+            }
+        }
+        try {
+            doubles.merge(ByteBuffer.wrap(longs.toByteArray()));
+            fail("Sketch of another item type was merged.");
+        } catch (final IllegalArgumentException expected) {
+        }
+        final Bonsai.FrequentItems copy = Bonsai.FrequentItems.readFrom(ByteBuffer.wrap(doubles.toByteArray()), 4);
+        assertEquals(Bonsai.FrequentItems.ItemType.DOUBLE, copy.getItemType());
+        assertEquals(1L, copy.estimateCount(1.5d));
+    }
+
+    @Test
+    public void corruptSketchTest() throws IOException {
+        final Bonsai.FrequentItems items = new Bonsai.FrequentItems(4);
+        items.update(1L);
+        final byte[] bytes = items.toByteArray();
+
+        final ByteBuffer hugeCapacity = ByteBuffer.wrap(bytes.clone());
+        hugeCapacity.putInt(4, 80_000_000);
+        assertEquals(4, Bonsai.FrequentItems.readFrom(hugeCapacity, 4).getCapacity());
+
+        final ByteBuffer hugeSize = ByteBuffer.wrap(bytes.clone());
+        hugeSize.putInt(24, 100_000_000);
+        try {
+            Bonsai.FrequentItems.readFrom(new ByteArrayInputStream(hugeSize.array()), 4);
+            fail("Sketch with too many counters was read.");
+        } catch (final IllegalArgumentException expected) {
+        }
+
+        final ByteBuffer moreCounters = ByteBuffer.wrap(bytes.clone());
+        moreCounters.putInt(24, 2);
+        try {
+            Bonsai.FrequentItems.readFrom(moreCounters, 4);
+            fail("Truncated sketch was read.");
+        } catch (final BufferUnderflowException expected) {
+        }
+    }
+
+    @Test
+    public void concatenatedReadTest() throws IOException {
+        final Bonsai.FrequentItems small = new Bonsai.FrequentItems(2);
+        small.update(1L);
+        final Bonsai.FrequentItems large = new Bonsai.FrequentItems(40);
+        for (long l = 0L; l < 40L; l++)
+            large.update(l, l + 1L);
+        final ByteBuffer wire = ByteBuffer.allocate(small.serializedSize() + large.serializedSize());
+        small.writeTo(wire);
+        large.writeTo(wire);
+        wire.flip();
+
+        assertEquals(1, Bonsai.FrequentItems.readFrom(wire, 2).size());
+        final Bonsai.FrequentItems second = Bonsai.FrequentItems.readFrom(wire, 40);
+        assertEquals(40, second.size());
+        assertEquals(large.getTotalCount(), second.getTotalCount());
+        assertEquals(40L, second.estimateCount(39L));
+        assertTrue(!wire.hasRemaining());
+
+        final ByteArrayInputStream in = new ByteArrayInputStream(wire.array());
+        Bonsai.FrequentItems.readFrom(in, 2);
+        assertEquals(40, Bonsai.FrequentItems.readFrom(in, 40).size());
+    }
+
+    @Test(expected = EOFException.class)
+    public void hugeStreamedSketchTest() throws IOException {
+        final ByteBuffer hugeSize = ByteBuffer.wrap(new Bonsai.FrequentItems(4).toByteArray());
+        hugeSize.putInt(4, 89_000_000);
+        hugeSize.putInt(24, 89_000_000);
+        Bonsai.FrequentItems.readFrom(new ByteArrayInputStream(hugeSize.array()), 4);
+    }
+
+    @Test
+    public void duplicateKeyTest() {
+        final Bonsai.FrequentItems items = new Bonsai.FrequentItems(4);
+        items.update(1L);
+        items.update(2L);
+        final ByteBuffer duplicate = ByteBuffer.wrap(items.toByteArray());
+        duplicate.putLong(28 + 24, duplicate.getLong(28));
+        try {
+            items.merge(duplicate);
+            fail("Sketch with a duplicate key was merged.");
+        } catch (final IllegalArgumentException expected) {
+        }
+        assertEquals(2, items.size());
+        assertEquals(1L, items.estimateCount(1L));
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 TheViperShow
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+
+package me.thevipershow.bonsai;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public final class MatrixTest {
+
+    private static final int ROWS = 300;
+    private static final int COLUMNS = 2_500;
+    private static final double DELTA = 1e-9;
+
+    private static double[][] randomMatrix() {
+        final Random random = new Random(3L);
+        final double[][] matrix = new double[ROWS][COLUMNS];
+        for (final double[] row : matrix)
+            for (int c = 0; c < COLUMNS; c++)
+                row[c] = random.nextGaussian() * (c % 7 + 1) + c;
+        return matrix;
+    }
+
+    private static double[] column(final double[][] matrix, final int c) {
+        final double[] column = new double[matrix.length];
+        for (int r = 0; r < matrix.length; r++)
+            column[r] = matrix[r][c];
+        return column;
+    }
+
+    private static void assertMatches(final double[] expected, final Bonsai.AxisStatistics stats, final int index) {
+        assertEquals(expected.length, stats.getCount());
+        assertEquals(Bonsai.arithmeticMean(expected), stats.getMean(index), DELTA);
+        final double variance = Bonsai.variance(expected);
+        assertEquals(variance, stats.getVariance(index), variance * DELTA);
+        assertEquals(Bonsai.stdDeviation(expected), stats.getStdDeviation(index), DELTA);
+        assertEquals(Arrays.stream(expected).min().getAsDouble(), stats.getMin(index), 0d);
+        assertEquals(Arrays.stream(expected).max().getAsDouble(), stats.getMax(index), 0d);
+    }
+
+    private static void assertColumns(final double[][] matrix, final Bonsai.AxisStatistics stats) {
+        assertEquals(COLUMNS, stats.size());
+        for (int c = 0; c < COLUMNS; c++)
+            assertMatches(column(matrix, c), stats, c);
+    }
+
+    private static void assertRows(final double[][] matrix, final Bonsai.AxisStatistics stats) {
+        assertEquals(ROWS, stats.size());
+        for (int r = 0; r < ROWS; r++)
+            assertMatches(matrix[r], stats, r);
+    }
+
+    @Test
+    public void jaggedMatrixTest() {
+        final double[][] matrix = randomMatrix();
+        assertColumns(matrix, Bonsai.columnStatistics(matrix));
+        assertColumns(matrix, Bonsai.columnStatistics(matrix, true));
+        assertRows(matrix, Bonsai.rowStatistics(matrix));
+        assertRows(matrix, Bonsai.rowStatistics(matrix, true));
+    }
+
+    @Test
+    public void flatMatrixTest() {
+        final double[][] matrix = randomMatrix();
+        final double[] rowMajor = new double[ROWS * COLUMNS];
+        final double[] columnMajor = new double[ROWS * COLUMNS];
+        for (int r = 0; r < ROWS; r++) {
+            for (int c = 0; c < COLUMNS; c++) {
+                rowMajor[r * COLUMNS + c] = matrix[r][c];
+                columnMajor[c * ROWS + r] = matrix[r][c];
+            }
+        }
+        for (final boolean parallel : new boolean[]{false, true}) {
+            assertColumns(matrix, Bonsai.columnStatistics(rowMajor, ROWS, COLUMNS, Bonsai.MatrixLayout.ROW_MAJOR, parallel));
+            assertColumns(matrix, Bonsai.columnStatistics(columnMajor, ROWS, COLUMNS, Bonsai.MatrixLayout.COLUMN_MAJOR, parallel));
+            assertRows(matrix, Bonsai.rowStatistics(rowMajor, ROWS, COLUMNS, Bonsai.MatrixLayout.ROW_MAJOR, parallel));
+            assertRows(matrix, Bonsai.rowStatistics(columnMajor, ROWS, COLUMNS, Bonsai.MatrixLayout.COLUMN_MAJOR, parallel));
+        }
+    }
+
+    @Test
+    public void accumulatorTest() {
+        final double[][] matrix = randomMatrix();
+        final Bonsai.Accumulator accumulator = Bonsai.columnStatistics(matrix, true).getAccumulator(42);
+        accumulator.merge(Bonsai.Accumulator.of(column(matrix, 42)));
+        assertEquals(2L * ROWS, accumulator.getCount());
+        assertEquals(Bonsai.arithmeticMean(column(matrix, 42)), accumulator.getMean(), DELTA);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void jaggedRowsTest() {
+        Bonsai.columnStatistics(new double[][]{{1d, 2d}, {3d}});
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void wrongSizeTest() {
+        Bonsai.rowStatistics(new double[5], 2, 3, Bonsai.MatrixLayout.ROW_MAJOR);
+    }
+}
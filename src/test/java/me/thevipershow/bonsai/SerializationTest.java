@@ -0,0 +1,227 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020 TheViperShow
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package me.thevipershow.bonsai;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+public final class SerializationTest {
+
+    private static final double[] SAMPLE = new double[]{1d, 5d, 3d, 2d, 1d, 6d, 4d, 5d, 7d};
+
+    @Test
+    public void accumulatorMergeFromBufferTest() {
+        final Random random = new Random(42L);
+        final double[] samples = new double[10_000];
+        for (int i = 0; i < samples.length; i++)
+            samples[i] = random.nextGaussian() * 10d + 100d;
+
+        final ByteBuffer wire = ByteBuffer.allocate(4 * new Bonsai.Accumulator().serializedSize()).order(ByteOrder.LITTLE_ENDIAN);
+        final int partition = samples.length / 4;
+        for (int p = 0; p < 4; p++)
+            Bonsai.Accumulator.of(Arrays.copyOfRange(samples, p * partition, (p + 1) * partition)).writeTo(wire);
+        wire.flip();
+
+        final Bonsai.Accumulator merged = new Bonsai.Accumulator();
+        while (wire.hasRemaining())
+            merged.merge(wire);
+
+        assertEquals(samples.length, merged.getCount());
+        assertEquals(Bonsai.arithmeticMean(samples), merged.getMean(), 1e-9);
+        assertEquals(Bonsai.variance(samples), merged.getVariance(), 1e-9);
+        assertEquals(Arrays.stream(samples).min().getAsDouble(), merged.getMin(), 0d);
+        assertEquals(Arrays.stream(samples).max().getAsDouble(), merged.getMax(), 0d);
+    }
+
+    @Test
+    public void accumulatorStreamTest() throws IOException {
+        final Bonsai.Accumulator accumulator = Bonsai.Accumulator.of(SAMPLE);
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        accumulator.writeTo(out);
+        accumulator.writeTo(out);
+        assertEquals(2 * accumulator.serializedSize(), out.size());
+
+        final ByteArrayInputStream in = new ByteArrayInputStream(out.toByteArray());
+        final Bonsai.Accumulator first = Bonsai.Accumulator.readFrom(in);
+        first.merge(Bonsai.Accumulator.readFrom(in));
+        assertEquals(2 * SAMPLE.length, first.getCount());
+        assertEquals(Bonsai.arithmeticMean(SAMPLE), first.getMean(), 1e-12);
+    }
+
+    @Test
+    public void histogramRoundTripTest() throws IOException {
+        final Bonsai.Histogram left = new Bonsai.Histogram(0d, 10d, 5);
+        final Bonsai.Histogram right = new Bonsai.Histogram(0d, 10d, 5);
+        for (final double d : SAMPLE) {
+            left.add(d);
+            right.add(d * 2d);
+        }
+        left.add(-1d);
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        right.writeTo(out);
+        final Bonsai.Histogram copy = Bonsai.Histogram.readFrom(new ByteArrayInputStream(out.toByteArray()));
+        assertArrayEquals(right.getCounts(), copy.getCounts());
+        assertEquals(right.getOverflow(), copy.getOverflow());
+
+        left.merge(ByteBuffer.wrap(right.toByteArray()));
+        assertArrayEquals(new long[]{2L, 4L, 4L, 3L, 1L}, left.getCounts());
+        assertEquals(1L, left.getUnderflow());
+        assertEquals(4L, left.getOverflow());
+        assertEquals(2L * SAMPLE.length + 1L, left.getTotalCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void incompatibleHistogramTest() {
+        new Bonsai.Histogram(0d, 10d, 5).merge(ByteBuffer.wrap(new Bonsai.Histogram(0d, 10d, 4).toByteArray()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void wrongTypeTest() {
+        final ByteBuffer buffer = ByteBuffer.wrap(new Bonsai.Histogram(0d, 10d, 5).toByteArray());
+        assertFalse(buffer.remaining() < new Bonsai.Accumulator().serializedSize());
+        Bonsai.Accumulator.readFrom(buffer);
+    }
+
+    @Test(expected = BufferUnderflowException.class)
+    public void truncatedAccumulatorTest() {
+        final byte[] bytes = Bonsai.Accumulator.of(SAMPLE).toByteArray();
+        Bonsai.Accumulator.readFrom(ByteBuffer.wrap(bytes, 0, bytes.length - 1));
+    }
+
+    @Test
+    public void corruptAccumulatorTest() {
+        final Bonsai.Accumulator accumulator = Bonsai.Accumulator.of(new double[]{1d, 2d, 3d});
+        final ByteBuffer negativeCount = ByteBuffer.wrap(Bonsai.Accumulator.of(SAMPLE).toByteArray());
+        negativeCount.putLong(3, -5L);
+        final ByteBuffer nanM2 = ByteBuffer.wrap(Bonsai.Accumulator.of(SAMPLE).toByteArray());
+        nanM2.putDouble(19, Double.NaN);
+        final ByteBuffer swappedBounds = ByteBuffer.wrap(Bonsai.Accumulator.of(SAMPLE).toByteArray());
+        swappedBounds.putDouble(27, 10d);
+        for (final ByteBuffer corrupt : new ByteBuffer[]{negativeCount, nanM2, swappedBounds}) {
+            try {
+                accumulator.merge(corrupt);
+                fail("Corrupt accumulator was merged.");
+            } catch (final IllegalArgumentException expected) {
+                assertEquals(0, corrupt.position());
+            }
+        }
+        assertEquals(3L, accumulator.getCount());
+        assertEquals(2d, accumulator.getMean(), 0d);
+    }
+
+    @Test
+    public void corruptHistogramTest() throws IOException {
+        final Bonsai.Histogram histogram = new Bonsai.Histogram(0d, 10d, 5);
+        for (final double d : SAMPLE)
+            histogram.add(d);
+
+        final ByteBuffer hugeBins = ByteBuffer.wrap(histogram.toByteArray());
+        hugeBins.putInt(19, 300_000_000);
+        try {
+            Bonsai.Histogram.readFrom(hugeBins);
+            fail("Histogram with too many bins was read.");
+        } catch (final IllegalArgumentException expected) {
+        }
+        try {
+            Bonsai.Histogram.readFrom(new ByteArrayInputStream(hugeBins.array()));
+            fail("Histogram with too many bins was read.");
+        } catch (final IllegalArgumentException expected) {
+        }
+
+        final ByteBuffer moreBins = ByteBuffer.wrap(histogram.toByteArray());
+        moreBins.putInt(19, 1_000);
+        try {
+            Bonsai.Histogram.readFrom(moreBins);
+            fail("Truncated histogram was read.");
+        } catch (final BufferUnderflowException expected) {
+        }
+
+        final ByteBuffer negativeCount = ByteBuffer.wrap(histogram.toByteArray());
+        negativeCount.putLong(negativeCount.capacity() - Long.BYTES, -1L);
+        try {
+            histogram.merge(negativeCount);
+            fail("Histogram with a negative count was merged.");
+        } catch (final IllegalArgumentException expected) {
+        }
+        assertEquals(SAMPLE.length, histogram.getTotalCount());
+    }
+
+    @Test
+    public void accumulatorNonFiniteTest() {
+        final Bonsai.Accumulator accumulator = new Bonsai.Accumulator();
+        for (final double d : new double[]{Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY}) {
+            try {
+                accumulator.add(d);
+                fail("Non-finite value was added.");
+            } catch (final IllegalArgumentException expected) {
+            }
+        }
+        assertEquals(0L, accumulator.getCount());
+
+        final Bonsai.Accumulator huge = Bonsai.Accumulator.of(new double[]{-1e300d, 1e300d, 0d});
+        final Bonsai.Accumulator copy = Bonsai.Accumulator.readFrom(ByteBuffer.wrap(huge.toByteArray()));
+        assertEquals(3L, copy.getCount());
+        assertEquals(huge.getVariance(), copy.getVariance(), 0d);
+    }
+
+    @Test
+    public void histogramBoundsTest() {
+        final double[][] bounds = new double[][]{
+                {Double.NEGATIVE_INFINITY, 0d},
+                {0d, Double.POSITIVE_INFINITY},
+                {-Double.MAX_VALUE, Double.MAX_VALUE},
+                {0d, Double.MIN_VALUE}
+        };
+        for (final double[] bound : bounds) {
+            try {
+                new Bonsai.Histogram(bound[0], bound[1], 4);
+                fail("Histogram with bounds [" + bound[0] + ", " + bound[1] + ") was created.");
+            } catch (final IllegalArgumentException expected) {
+            }
+        }
+    }
+
+    @Test(expected = EOFException.class)
+    public void hugeStreamedHistogramTest() throws IOException {
+        final ByteBuffer hugeBins = ByteBuffer.wrap(new Bonsai.Histogram(0d, 10d, 5).toByteArray());
+        hugeBins.putInt(19, 268_000_000);
+        Bonsai.Histogram.readFrom(new ByteArrayInputStream(hugeBins.array()));
+    }
+}